@@ -3,24 +3,59 @@
  * also includes methods to perform a depth first search 
  * and a depth first search traversal as well as a method
  * to safe the graph information to a tgf file.
+ * Each vertex is given an int id by a VertexDictionary, and
+ * the arcs are stored as arrays of ids, so every vertex is
+ * only stored once however many arcs it has.
  * @author mpapagel
  * @version 05/15/20
  */
 import java.util.*;
 import java.io.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
 import javafoundations.*;
 public class AdjListsGraph<T> implements Graph<T>
 {
     // instance variables 
-    private Vector<LinkedList<T>> arcs;
-    private Vector<T> vertices;
+    private VertexDictionary<T> dictionary;
+    private int[][] arcs; // ids of the successors of each vertex, by id
+    private int[] degree; // number of successors of each vertex, by id
+    private int removals; // number of vertices removed, since each removal changes ids
+    private volatile int undirected = -1; // 1 if every arc has its opposite, 0 if not, -1 if not known
+    private ThreadLocal<TraversalMarks[]> marks = new ThreadLocal<TraversalMarks[]>() {
+        protected TraversalMarks[] initialValue() {
+            return new TraversalMarks[] {new TraversalMarks(), new TraversalMarks()};
+        }
+    };
+    private ExecutorService pathPool; // threads of shortestPaths, made on first use
+    private ThreadLocal<PathSearch> searches = new ThreadLocal<PathSearch>() {
+        protected PathSearch initialValue() {
+            return new PathSearch();
+        }
+    };
     
     /** 
      * Constructor for AdjListsGraph class
      */
     public AdjListsGraph(){
-        arcs = new Vector<LinkedList<T>>();
-        vertices = new Vector<T>();
+        this(new HashVertexDictionary<T>());
+    }
+
+    /** 
+     * Constructor for AdjListsGraph class that uses the given dictionary
+     * to give ids to its vertices. Vertices already in the dictionary are
+     * vertices of the graph, and after this only the graph should add to
+     * or remove from the dictionary.
+     * @param dictionary dictionary for the vertices of this graph
+     */
+    public AdjListsGraph(VertexDictionary<T> dictionary){
+        this.dictionary = dictionary;
+        int n = Math.max(dictionary.size(), 16);
+        arcs = new int[n][];
+        degree = new int[n];
+        for (int i = 0; i < dictionary.size(); i++) {
+            arcs[i] = new int[0];
+        }
     }
 
     /** 
@@ -29,7 +64,7 @@ public class AdjListsGraph<T> implements Graph<T>
      * @return true if this graph is empty, false otherwise.
      */
     public boolean isEmpty(){
-        return vertices.size() == 0;
+        return dictionary.size() == 0;
     }
 
     /** 
@@ -37,14 +72,20 @@ public class AdjListsGraph<T> implements Graph<T>
      * @return the number of vertices in this graph
      */
     public int getNumVertices(){
-        return vertices.size();
+        return dictionary.size();
     }
 
     /** 
      * Getter method for all the vertices in the graph.
+     * The vertices are looked up in the dictionary into a new Vector,
+     * so changing it does not change the graph.
      * @return vertices Vector<T> of all the vertices
      */
     public Vector<T> getAllVertices(){
+        Vector<T> vertices = new Vector<T>(dictionary.size());
+        for (int i = 0; i < dictionary.size(); i++) {
+            vertices.add(dictionary.getVertex(i));
+        }
         return vertices;
     }
     
@@ -56,8 +97,8 @@ public class AdjListsGraph<T> implements Graph<T>
      *  */
     public int getNumArcs(){
         int numArcs = 0;
-        for( int  i= 0; i<arcs.size(); i++){
-            numArcs+= arcs.get(i).size();
+        for( int  i= 0; i<dictionary.size(); i++){
+            numArcs+= degree[i];
         }
         return numArcs;
     }
@@ -70,12 +111,13 @@ public class AdjListsGraph<T> implements Graph<T>
      * 
      *  */
     public boolean isArc (T vertex1, T vertex2){
-        if (! vertices.contains(vertex1)){
+        int index1 = indexOf(vertex1);
+        int index2 = indexOf(vertex2);
+        if (index1 < 0 || index2 < 0){
             return false;
         }
         else {
-            int index = vertices.indexOf(vertex1);
-            return arcs.get(index).contains(vertex2); 
+            return find(index1, index2) >= 0;
         }
     }
 
@@ -96,16 +138,28 @@ public class AdjListsGraph<T> implements Graph<T>
      * Returns true if the graph is undirected, that is, for every
      * pair of nodes i,j for which there is an arc, the opposite arc
      * is also present in the graph, false otherwise.  
+     * The answer is kept until the arcs of the graph change.
      * @return true if the graph is undirected, false otherwise
      * */
     public boolean isUndirected(){
-        for(int i=0; i<arcs.size(); i++){
-            for(int j = 0; j<arcs.get(i).size(); j++)
-                if (! isEdge((arcs.get(i).get(j)),(vertices.get(i)))){
-                    return false;
-                }
+        if (undirected < 0) {
+            //sort a copy of each list of arcs to look for opposite arcs quickly
+            int[][] sorted = new int[dictionary.size()][];
+            for (int i = 0; i < dictionary.size(); i++){
+                sorted[i] = successorIndexes(i);
+                Arrays.sort(sorted[i]);
+            }
+            int result = 1;
+            for(int i=0; i<dictionary.size() && result == 1; i++){
+                for(int j = 0; j<degree[i]; j++)
+                    if (Arrays.binarySearch(sorted[arcs[i][j]], i) < 0){
+                        result = 0;
+                        break;
+                    }
+            }
+            undirected = result;
         }
-        return true;
+        return undirected == 1;
     }
 
     /** 
@@ -114,9 +168,14 @@ public class AdjListsGraph<T> implements Graph<T>
      * @param vertex the vertex to be added to this graph
      * */
     public void addVertex (T vertex){
-        if (!vertices.contains(vertex)){
-            vertices.add(vertex);
-            arcs.add(new LinkedList<T>()); 
+        if (indexOf(vertex) < 0){
+            int index = dictionary.add(vertex);
+            if (index == arcs.length) {
+                arcs = Arrays.copyOf(arcs, index * 2);
+                degree = Arrays.copyOf(degree, index * 2);
+            }
+            arcs[index] = new int[0];
+            degree[index] = 0;
         }
     }
 
@@ -126,12 +185,26 @@ public class AdjListsGraph<T> implements Graph<T>
      * @param vertex the vertex to be removed from this graph
      *  */
     public void removeVertex (T vertex){
-        if (vertices.contains(vertex)){
-            int vertexIndex = vertices.indexOf(vertex);
-            vertices.remove(vertex);
-            arcs.remove(vertexIndex); 
-            for(int i = 0; i<arcs.size(); i++){
-                arcs.get(i).remove(vertex); 
+        int vertexIndex = indexOf(vertex);
+        if (vertexIndex >= 0){
+            int n = dictionary.size();
+            dictionary.remove(vertexIndex);
+            removals++;
+            undirected = -1;
+            System.arraycopy(arcs, vertexIndex + 1, arcs, vertexIndex, n - vertexIndex - 1);
+            System.arraycopy(degree, vertexIndex + 1, degree, vertexIndex, n - vertexIndex - 1);
+            arcs[n - 1] = null;
+            degree[n - 1] = 0;
+            //drop arcs to the vertex, and move down the ids after it
+            for(int i = 0; i<n - 1; i++){
+                int size = 0;
+                for (int j = 0; j < degree[i]; j++) {
+                    int successor = arcs[i][j];
+                    if (successor != vertexIndex) {
+                        arcs[i][size++] = successor > vertexIndex ? successor - 1 : successor;
+                    }
+                }
+                degree[i] = size;
             }
         }
 
@@ -145,9 +218,14 @@ public class AdjListsGraph<T> implements Graph<T>
      * @param vertex2 the destination of the arc to be added to this graph
      *  */
     public void addArc (T vertex1, T vertex2){
-        if (vertices.contains(vertex1) && vertices.contains(vertex2)){
-            int vertexIndex =vertices.indexOf(vertex1);
-            arcs.get(vertexIndex).add(vertex2); 
+        int index1 = indexOf(vertex1);
+        int index2 = indexOf(vertex2);
+        if (index1 >= 0 && index2 >= 0){
+            if (degree[index1] == arcs[index1].length) {
+                arcs[index1] = Arrays.copyOf(arcs[index1], Math.max(2, degree[index1] * 2));
+            }
+            arcs[index1][degree[index1]++] = index2;
+            undirected = -1;
         }
     }
 
@@ -160,8 +238,11 @@ public class AdjListsGraph<T> implements Graph<T>
      * */
     public void removeArc (T vertex1, T vertex2){
         if (isArc(vertex1, vertex2)){
-            int vertexIndex = vertices.indexOf(vertex1);
-            arcs.get(vertexIndex).remove(vertex2); 
+            int vertexIndex = indexOf(vertex1);
+            int j = find(vertexIndex, indexOf(vertex2));
+            System.arraycopy(arcs[vertexIndex], j + 1, arcs[vertexIndex], j, degree[vertexIndex] - j - 1);
+            degree[vertexIndex]--;
+            undirected = -1;
         }
     }
 
@@ -194,13 +275,23 @@ public class AdjListsGraph<T> implements Graph<T>
 
     /** 
      * Return all the vertices, in this graph, adjacent to the given vertex.
+     * The successors are looked up in the dictionary into a new list each
+     * time, so changing the list does not change the graph; use addArc and
+     * removeArc for that.
      * @param vertex a vertex in the graph whose successors will be returned.
      * @return LinkedList containing all the vertices x in the graph,
-     * for which an arc exists from the given vertex to x (vertex -> x).
+     * for which an arc exists from the given vertex to x (vertex -> x),
+     * empty if the given vertex is not in the graph.
      * */
     public LinkedList<T> getSuccessors(T vertex){
-        int vertexIndex = vertices.indexOf(vertex);
-        return arcs.get(vertexIndex); 
+        LinkedList<T> successors = new LinkedList<T>();
+        int vertexIndex = indexOf(vertex);
+        if (vertexIndex >= 0){
+            for (int j = 0; j < degree[vertexIndex]; j++) {
+                successors.add(dictionary.getVertex(arcs[vertexIndex][j]));
+            }
+        }
+        return successors;
     }
 
     /** 
@@ -212,13 +303,12 @@ public class AdjListsGraph<T> implements Graph<T>
      * */
     public LinkedList<T> getPredecessors(T vertex){
         LinkedList<T> predecessors = new LinkedList<T>();
-        if (vertices.contains(vertex)){
-
-            //for (int i = 0; i<vertices.indexOf(vertex); i++){
-            int i = 0;
-            while (vertices.get(i) != vertex );
-            {
-                predecessors.add(vertices.get(i));
+        int vertexIndex = indexOf(vertex);
+        if (vertexIndex >= 0){
+            for (int i = 0; i < dictionary.size(); i++){
+                if (find(i, vertexIndex) >= 0) {
+                    predecessors.add(dictionary.getVertex(i));
+                }
             }
         }
         return predecessors;
@@ -231,11 +321,12 @@ public class AdjListsGraph<T> implements Graph<T>
      *  */
     public String toString(){
         String result = "Verticies";
-        result += vertices.toString();
+        result += getAllVertices().toString();
         result += "Edges";
-        for (int i = 0; i < arcs.size(); i++) {
-            result  += "from" + vertices.elementAt(i) + ": " 
-            + arcs.elementAt(i) + "\n";
+        for (int i = 0; i < dictionary.size(); i++) {
+            T vertex = dictionary.getVertex(i);
+            result  += "from" + vertex + ": " 
+            + getSuccessors(vertex) + "\n";
         }
         return result;
     }
@@ -248,13 +339,13 @@ public class AdjListsGraph<T> implements Graph<T>
     public void saveToTGF(String tgf_file_name){
         try{
             PrintWriter printer = new PrintWriter(new File(tgf_file_name));
-            for (int i = 0; i<vertices.size(); i++){
-                printer.println((i+1)+" "+vertices.get(i));
+            for (int i = 0; i<dictionary.size(); i++){
+                printer.println((i+1)+" "+dictionary.getVertex(i));
             }
             printer.println("#");
-            for (int i = 0; i<arcs.size(); i++){
-                for (int j = 0; j<arcs.get(i).size(); j++){
-                    printer.println((i+1)+" "+arcs.get(i).get(j));
+            for (int i = 0; i<dictionary.size(); i++){
+                for (int j = 0; j<degree[i]; j++){
+                    printer.println((i+1)+" "+dictionary.getVertex(arcs[i][j]));
                 }
             }
         }
@@ -263,6 +354,18 @@ public class AdjListsGraph<T> implements Graph<T>
         }
     }
 
+    /**
+     * Shrinks the array of arcs of each vertex to the number of arcs it
+     * has, e.g. once a large graph has been read in.
+     */
+    public void trimToSize(){
+        for (int i = 0; i < dictionary.size(); i++){
+            if (arcs[i].length > degree[i]) {
+                arcs[i] = Arrays.copyOf(arcs[i], degree[i]);
+            }
+        }
+    }
+
     /**
      * Performs a depth first search of the entire graph using a stack
      * starting at the given point with no specific end point.
@@ -270,38 +373,11 @@ public class AdjListsGraph<T> implements Graph<T>
      * @return LinkedList<T> containing the verticies that are the
      * outcome of the depth first search
      */
-
     public LinkedList<T> depthFirstSearch(T vertex) {
-        ArrayStack<T> stk = new ArrayStack<T>();
         LinkedList<T> result = new LinkedList<T>();
-        boolean [] marked = new boolean[vertices.size()];
-        for (int v = 0; v < vertices.size(); v++) {
-            marked[v] = false; //mark each vertex as unvisited
-        }
-        T currentNode;
-        int currentIndex;
-        //push/add starting vertex into stack, then mark it as unvisited
-        stk.push(vertex);
-        result.add(vertex);
-        marked[vertices.indexOf(vertex)] = true;
-        while(!stk.isEmpty()) {
-            currentNode = stk.peek();
-            currentIndex = vertices.indexOf(currentNode);
-            LinkedList<T> currentArcsList = arcs.get(currentIndex);
-            int indexOfList = 0;
-            while (indexOfList == currentArcsList.size()) {
-              if (indexOfList == currentArcsList.size()){
-                  stk.pop();
-                }
-              else if (marked[vertices.indexOf(currentArcsList.get(indexOfList))] == false) {
-                 //push vertex into stack and add to result list if it hasn't been visited
-                 stk.push(currentArcsList.get(indexOfList));
-                 result.add(currentArcsList.get(indexOfList));
-                 marked[vertices.indexOf(currentArcsList.get(indexOfList))] = true;
-                 indexOfList = currentArcsList.size() + 1;
-                }
-              indexOfList++;
-            }
+        Traversal iter = new DepthFirstIterator(indexOf(vertex), Integer.MAX_VALUE, true);
+        while (iter.hasNext()) {
+            result.add(iter.next());
         }
         return result;
     }
@@ -314,34 +390,836 @@ public class AdjListsGraph<T> implements Graph<T>
      * the outcome of the breadth first search
      */
     public LinkedList<T> breadthFirstSearch(T vertex){
-        LinkedQueue<T> q = new LinkedQueue<T>();       
-        LinkedList<T> iterator = new LinkedList<T>();
+        LinkedList<T> result = new LinkedList<T>();
+        Traversal iter = new BreadthFirstIterator(indexOf(vertex), Integer.MAX_VALUE, true);
+        while (iter.hasNext()) {
+            result.add(iter.next());
+        }
+        return result;
+    }
+
+    /**
+     * Returns an iterator over the vertices reachable from the given
+     * vertex in depth first order. Vertices are only found as they
+     * are asked for, so the caller can stop at any point.
+     * @param vertex starting vertex for DFS traversal
+     * @return Iterator<T> over the verticies of the depth first search,
+     * empty if the vertex is not in the graph
+     */
+    public Iterator<T> depthFirstIterator(T vertex) {
+        return depthFirstIterator(vertex, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns an iterator over the vertices reachable from the given
+     * vertex in depth first order, going no deeper than the given depth.
+     * Every vertex with a path of at most maxDepth arcs from the starting
+     * vertex is returned once, even if the search first reaches it by a
+     * longer path.
+     * Only one iterator or stream per thread can be in progress: starting
+     * another makes this one throw ConcurrentModificationException if it
+     * is used again. Each thread keeps the marks it reuses between
+     * traversals, two ints per vertex, for as long as the graph lives.
+     * @param vertex starting vertex for DFS traversal
+     * @param maxDepth largest number of arcs from the starting vertex
+     * @return Iterator<T> over the verticies of the depth first search,
+     * empty if the vertex is not in the graph
+     */
+    public Iterator<T> depthFirstIterator(T vertex, int maxDepth) {
+        return new DepthFirstIterator(indexOf(vertex), maxDepth, false);
+    }
+
+    /**
+     * Returns an iterator over the vertices reachable from the given
+     * vertex in breadth first order. Vertices are only found as they
+     * are asked for, so the caller can stop at any point.
+     * @param vertex starting vertex for BFS traversal
+     * @return Iterator<T> over the verticies of the breadth first search,
+     * empty if the vertex is not in the graph
+     */
+    public Iterator<T> breadthFirstIterator(T vertex) {
+        return breadthFirstIterator(vertex, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns an iterator over the vertices reachable from the given
+     * vertex in breadth first order, going no deeper than the given depth.
+     * Only one iterator or stream per thread can be in progress: starting
+     * another makes this one throw ConcurrentModificationException if it
+     * is used again. Each thread keeps the marks it reuses between
+     * traversals, two ints per vertex, for as long as the graph lives.
+     * @param vertex starting vertex for BFS traversal
+     * @param maxDepth largest number of arcs from the starting vertex
+     * @return Iterator<T> over the verticies of the breadth first search,
+     * empty if the vertex is not in the graph
+     */
+    public Iterator<T> breadthFirstIterator(T vertex, int maxDepth) {
+        return new BreadthFirstIterator(indexOf(vertex), maxDepth, false);
+    }
+
+    /**
+     * Returns a spliterator over the vertices reachable from the given
+     * vertex in depth first order, which is ordered and has no duplicates.
+     * Vertices are found as in depthFirstIterator.
+     * @param vertex starting vertex for DFS traversal
+     * @return Spliterator<T> over the verticies of the depth first search
+     */
+    public Spliterator<T> depthFirstSpliterator(T vertex) {
+        return depthFirstSpliterator(vertex, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns a spliterator over the vertices reachable from the given
+     * vertex in depth first order, going no deeper than the given depth.
+     * Vertices are found as in depthFirstIterator with the same limit.
+     * @param vertex starting vertex for DFS traversal
+     * @param maxDepth largest number of arcs from the starting vertex
+     * @return Spliterator<T> over the verticies of the depth first search
+     */
+    public Spliterator<T> depthFirstSpliterator(T vertex, int maxDepth) {
+        return spliterator(depthFirstIterator(vertex, maxDepth));
+    }
+
+    /**
+     * Returns a spliterator over the vertices reachable from the given
+     * vertex in breadth first order, which is ordered and has no duplicates.
+     * Vertices are found as in breadthFirstIterator.
+     * @param vertex starting vertex for BFS traversal
+     * @return Spliterator<T> over the verticies of the breadth first search
+     */
+    public Spliterator<T> breadthFirstSpliterator(T vertex) {
+        return breadthFirstSpliterator(vertex, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns a spliterator over the vertices reachable from the given
+     * vertex in breadth first order, going no deeper than the given depth.
+     * Vertices are found as in breadthFirstIterator with the same limit.
+     * @param vertex starting vertex for BFS traversal
+     * @param maxDepth largest number of arcs from the starting vertex
+     * @return Spliterator<T> over the verticies of the breadth first search
+     */
+    public Spliterator<T> breadthFirstSpliterator(T vertex, int maxDepth) {
+        return spliterator(breadthFirstIterator(vertex, maxDepth));
+    }
+
+    /**
+     * Returns a sequential stream of the vertices reachable from the
+     * given vertex in depth first order, e.g. to take the first few
+     * with limit() or to look for one with anyMatch().
+     * @param vertex starting vertex for DFS traversal
+     * @return Stream<T> of the verticies of the depth first search
+     */
+    public Stream<T> depthFirstStream(T vertex) {
+        return depthFirstStream(vertex, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns a sequential stream of the vertices reachable from the
+     * given vertex in depth first order, going no deeper than the given
+     * depth. Returns the same vertices as depthFirstIterator with the
+     * same depth limit.
+     * @param vertex starting vertex for DFS traversal
+     * @param maxDepth largest number of arcs from the starting vertex
+     * @return Stream<T> of the verticies of the depth first search
+     */
+    public Stream<T> depthFirstStream(T vertex, int maxDepth) {
+        return StreamSupport.stream(depthFirstSpliterator(vertex, maxDepth), false);
+    }
+
+    /**
+     * Returns a sequential stream of the vertices reachable from the
+     * given vertex in breadth first order, e.g. to take the first few
+     * with limit() or to look for one with anyMatch().
+     * @param vertex starting vertex for BFS traversal
+     * @return Stream<T> of the verticies of the breadth first search
+     */
+    public Stream<T> breadthFirstStream(T vertex) {
+        return breadthFirstStream(vertex, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns a sequential stream of the vertices reachable from the
+     * given vertex in breadth first order, going no deeper than the
+     * given depth.
+     * @param vertex starting vertex for BFS traversal
+     * @param maxDepth largest number of arcs from the starting vertex
+     * @return Stream<T> of the verticies of the breadth first search
+     */
+    public Stream<T> breadthFirstStream(T vertex, int maxDepth) {
+        return StreamSupport.stream(breadthFirstSpliterator(vertex, maxDepth), false);
+    }
+
+    /**
+     * Performs a depth first traversal from the given vertex, calling
+     * the visitor on each vertex reached until it returns false. Visits
+     * the same vertices as depthFirstIterator with the same depth limit.
+     * The depth given to the visitor is the number of arcs on the path
+     * the search first reached the vertex by, which can be more than
+     * the fewest arcs from the starting vertex.
+     * @param vertex starting vertex for DFS traversal
+     * @param maxDepth largest number of arcs from the starting vertex
+     * @param visitor called with each vertex and its depth on the search path
+     */
+    public void depthFirstTraversal(T vertex, int maxDepth, GraphVisitor<T> visitor) {
+        traverse(new DepthFirstIterator(indexOf(vertex), maxDepth, true), visitor);
+    }
+
+    /**
+     * Performs a breadth first traversal from the given vertex, calling
+     * the visitor on each vertex reached until it returns false. The
+     * depth given to the visitor is the fewest arcs from the starting vertex.
+     * @param vertex starting vertex for BFS traversal
+     * @param maxDepth largest number of arcs from the starting vertex
+     * @param visitor called with each vertex and its depth
+     */
+    public void breadthFirstTraversal(T vertex, int maxDepth, GraphVisitor<T> visitor) {
+        traverse(new BreadthFirstIterator(indexOf(vertex), maxDepth, true), visitor);
+    }
+
+    /**
+     * Returns true if the second vertex can be reached from the first
+     * one, stopping the search as soon as it is found.
+     * @param vertex1 starting vertex
+     * @param vertex2 vertex to look for
+     * @return true if a path exists from vertex1 to vertex2, false otherwise
+     */
+    public boolean isReachable(T vertex1, T vertex2) {
+        int target = indexOf(vertex2);
+        if (target < 0) {
+            return false;
+        }
+        Traversal iter = new BreadthFirstIterator(indexOf(vertex1), Integer.MAX_VALUE, true);
+        try {
+            while (iter.hasNext()) {
+                if (iter.nextIndex() == target) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            iter.release();
+        }
+    }
+
+    /**
+     * Returns a shortest path between two vertices, following arcs from
+     * the first to the second. In an undirected graph, such as the one
+     * of RATs and stories, searches breadth first from both ends at once,
+     * always expanding the smaller frontier, so only a small part of the
+     * graph is looked at around each end. In a directed graph, only
+     * searches forward from the first vertex. The calling thread keeps
+     * the arrays of the search, six ints per vertex, for as long as the
+     * graph lives, so later queries do not have to make them again.
+     * @param vertex1 first vertex of the path
+     * @param vertex2 last vertex of the path
+     * @return LinkedList<T> of the vertices on the path, from vertex1
+     * to vertex2, empty if there is no path or a vertex is not in the graph
+     */
+    public LinkedList<T> shortestPath(T vertex1, T vertex2) {
+        LinkedList<T> path = new LinkedList<T>();
+        int[] indexes = shortestPath(indexOf(vertex1), indexOf(vertex2));
+        if (indexes != null) {
+            for (int i = 0; i < indexes.length; i++) {
+                path.add(dictionary.getVertex(indexes[i]));
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Returns the number of arcs on a shortest path from the first vertex
+     * to the second, found as in shortestPath.
+     * @param vertex1 first vertex of the path
+     * @param vertex2 last vertex of the path
+     * @return number of edges on the path, -1 if there is no path
+     */
+    public int distance(T vertex1, T vertex2) {
+        int[] indexes = shortestPath(indexOf(vertex1), indexOf(vertex2));
+        return indexes == null ? -1 : indexes.length - 1;
+    }
+
+    /**
+     * Returns shortest paths for many pairs of vertices, found as in
+     * shortestPath, answering the pairs concurrently on all available cores.
+     * The graph keeps a daemon thread per core for this, each with its
+     * own search arrays, until it has been idle for a minute.
+     * The graph should not change while the paths are found.
+     * @param from first vertex of each pair
+     * @param to last vertex of each pair, in the same order as from
+     * @return Vector<LinkedList<T>> with the path between from.get(i) and
+     * to.get(i) at index i, empty if there is no path
+     */
+    public Vector<LinkedList<T>> shortestPaths(Vector<T> from, Vector<T> to) {
+        if (from.size() != to.size()) {
+            throw new IllegalArgumentException("Expected as many starting as ending vertices");
+        }
+        isUndirected(); //check once here rather than in every thread
+        ExecutorService pool = getPathPool();
+        Vector<Future<LinkedList<T>>> futures = new Vector<Future<LinkedList<T>>>();
+        for (int i = 0; i < from.size(); i++) {
+            final T vertex1 = from.get(i);
+            final T vertex2 = to.get(i);
+            futures.add(pool.submit(new Callable<LinkedList<T>>() {
+                public LinkedList<T> call() {
+                    return shortestPath(vertex1, vertex2);
+                }
+            }));
+        }
+        Vector<LinkedList<T>> paths = new Vector<LinkedList<T>>();
+        try {
+            for (Future<LinkedList<T>> future : futures) {
+                paths.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            for (Future<LinkedList<T>> future : futures) {
+                future.cancel(false);
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Returns the threads shortestPaths answers pairs on, making them the
+     * first time. There is one daemon thread per core, which is kept for
+     * a minute after its last query, so that batches asked for one after
+     * the other reuse the PathSearch each thread made.
+     */
+    private synchronized ExecutorService getPathPool() {
+        if (pathPool == null) {
+            int numThreads = Runtime.getRuntime().availableProcessors();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(numThreads, numThreads,
+                    60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new ThreadFactory() {
+                        public Thread newThread(Runnable task) {
+                            Thread thread = new Thread(task, "shortest-paths");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            pathPool = pool;
+        }
+        return pathPool;
+    }
+
+    /**
+     * Bidirectional breadth first search between the vertices at the
+     * given indexes, or forward search if the graph is directed, since
+     * then the arcs can not be followed back from the end. Each step expands a whole level of the smaller
+     * frontier, and keeps the shortest of the paths through the vertices
+     * where that level meets the other search. Uses the PathSearch of the
+     * calling thread, so the work done depends on how many vertices are
+     * reached and not on the size of the graph.
+     * @return indexes of the vertices on a shortest path, null if none
+     */
+    private int[] shortestPath(int start, int end) {
+        if (start < 0 || end < 0) {
+            return null;
+        }
+        if (start == end) {
+            return new int[] {start};
+        }
+        PathSearch search = searches.get();
+        search.begin(dictionary.size());
+        if (!isUndirected()) {
+            return forwardPath(start, end, search);
+        }
+        search.reach(0, start, 0, -1);
+        search.reach(1, end, 0, -1);
+        search.frontier[0][0] = start;
+        search.frontier[1][0] = end;
+        int[] frontierSize = {1, 1};
+        while (frontierSize[0] > 0 && frontierSize[1] > 0) {
+            int side = frontierSize[0] <= frontierSize[1] ? 0 : 1;
+            int other = 1 - side;
+            int nextSize = 0;
+            int meet = -1;
+            int best = Integer.MAX_VALUE;
+            for (int f = 0; f < frontierSize[side]; f++) {
+                int current = search.frontier[side][f];
+                int currentDist = search.dist[side][current];
+                for (int j = 0; j < degree[current]; j++) {
+                    int index = arcs[current][j];
+                    if (search.reached(side, index)) {
+                        continue;
+                    }
+                    search.reach(side, index, currentDist + 1, current);
+                    nextSize = search.addNext(nextSize, index);
+                    if (search.reached(other, index) && currentDist + 1 + search.dist[other][index] < best) {
+                        best = currentDist + 1 + search.dist[other][index];
+                        meet = index;
+                    }
+                }
+            }
+            if (meet >= 0) {
+                //walk back from where the searches met to each end
+                int[] path = new int[best + 1];
+                int i = search.dist[0][meet];
+                for (int v = meet; v >= 0; v = search.parent[0][v]) {
+                    path[i--] = v;
+                }
+                i = search.dist[0][meet];
+                for (int v = meet; v >= 0; v = search.parent[1][v]) {
+                    path[i++] = v;
+                }
+                return path;
+            }
+            int[] swap = search.frontier[side];
+            search.frontier[side] = search.next;
+            search.next = swap;
+            frontierSize[side] = nextSize;
+        }
+        return null;
+    }
+
+    /**
+     * Breadth first search forward from the start, level by level, until
+     * the end is reached.
+     * @return indexes of the vertices on a shortest path, null if none
+     */
+    private int[] forwardPath(int start, int end, PathSearch search) {
+        search.reach(0, start, 0, -1);
+        search.frontier[0][0] = start;
+        int frontierSize = 1;
+        while (frontierSize > 0) {
+            int nextSize = 0;
+            for (int f = 0; f < frontierSize; f++) {
+                int current = search.frontier[0][f];
+                int currentDist = search.dist[0][current];
+                for (int j = 0; j < degree[current]; j++) {
+                    int index = arcs[current][j];
+                    if (search.reached(0, index)) {
+                        continue;
+                    }
+                    search.reach(0, index, currentDist + 1, current);
+                    if (index == end) {
+                        int[] path = new int[currentDist + 2];
+                        for (int v = end, i = currentDist + 1; v >= 0; v = search.parent[0][v]) {
+                            path[i--] = v;
+                        }
+                        return path;
+                    }
+                    nextSize = search.addNext(nextSize, index);
+                }
+            }
+            int[] swap = search.frontier[0];
+            search.frontier[0] = search.next;
+            search.next = swap;
+            frontierSize = nextSize;
+        }
+        return null;
+    }
+
+    /**
+     * PathSearch holds the arrays of a bidirectional search, so that each
+     * thread makes them once and reuses them for every query. A vertex
+     * counts as reached from a side only if its stamp is the number of
+     * the current query, so nothing has to be cleared between queries
+     * and a query only touches the vertices it reaches.
+     */
+    private static class PathSearch
+    {
+        private int[][] stamp = {new int[0], new int[0]}; // query each vertex was last reached in
+        private int[][] dist = {new int[0], new int[0]}; // arcs from each end
+        private int[][] parent = {new int[0], new int[0]}; // previous vertex on the path from each end
+        private int[][] frontier = {new int[16], new int[16]};
+        private int[] next = new int[16];
+        private int query;
+
+        /**
+         * Starts a new query on a graph with the given number of vertices.
+         */
+        private void begin(int n) {
+            if (stamp[0].length < n) {
+                for (int side = 0; side < 2; side++) {
+                    stamp[side] = Arrays.copyOf(stamp[side], n);
+                    dist[side] = new int[n];
+                    parent[side] = new int[n];
+                }
+            }
+            if (query == Integer.MAX_VALUE) {
+                Arrays.fill(stamp[0], 0);
+                Arrays.fill(stamp[1], 0);
+                query = 0;
+            }
+            query++;
+        }
+
+        private boolean reached(int side, int index) {
+            return stamp[side][index] == query;
+        }
+
+        private void reach(int side, int index, int distance, int previous) {
+            stamp[side][index] = query;
+            dist[side][index] = distance;
+            parent[side][index] = previous;
+        }
+
+        /**
+         * Adds a vertex to the next frontier, growing it if needed, and
+         * returns the new size of the next frontier.
+         */
+        private int addNext(int size, int index) {
+            if (size == next.length) {
+                next = Arrays.copyOf(next, size * 2);
+            }
+            next[size] = index;
+            return size + 1;
+        }
+    }
+
+    /**
+     * Returns the number of vertices removed from this graph so far. Ids
+     * taken before a removal may belong to other vertices after it.
+     */
+    int getRemovals() {
+        return removals;
+    }
+
+    /**
+     * Returns the number of vertices reachable from the vertex with the
+     * given id, itself included, without looking up any vertices.
+     */
+    int countReachable(int index) {
+        Traversal iter = new BreadthFirstIterator(index, Integer.MAX_VALUE, true);
         int count = 0;
-        boolean[] marked = new boolean[vertices.size()];
-        for (int v = 0; v < vertices.size(); v++){ // mark each vertex as unvisited
-            marked[v] = false;
-        }
-        q.enqueue(vertex);
-        marked[(vertices.indexOf(vertex))] = true;
-        T current;
-        int currentIndex;
-        LinkedList<T> currentList;
-        while (!q.isEmpty()){
-            current = q.dequeue();
-            currentIndex = vertices.indexOf(current);
-            iterator.add(current);
+        while (iter.hasNext()) {
+            iter.nextIndex();
             count++;
-            currentList = arcs.get(currentIndex);
-            for(int i = 0; i < currentList.size(); i++){
-                T currentNodeInList = currentList.get(i);
-                // enqueue vertex if it hasn't been visited and if arcs exist at from vertex (not null)
-                if (!marked[vertices.indexOf(currentNodeInList)] && !(currentNodeInList ==null)){
-                    q.enqueue(currentNodeInList);
-                    marked[vertices.indexOf(currentNodeInList)] = true;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the id of the given vertex, -1 if it is not in the graph.
+     */
+    int indexOf(T vertex) {
+        return dictionary.getId(vertex);
+    }
+
+    /**
+     * Returns the vertex with the given id.
+     */
+    T vertexAt(int index) {
+        return dictionary.getVertex(index);
+    }
+
+    /**
+     * Returns the number of successors of the vertex with the given id.
+     */
+    int degree(int index) {
+        return degree[index];
+    }
+
+    /**
+     * Returns a copy of the ids of the successors of the vertex with the given id.
+     */
+    int[] successorIndexes(int index) {
+        return Arrays.copyOf(arcs[index], degree[index]);
+    }
+
+    /**
+     * Returns the place of the second id in the arcs of the first one,
+     * -1 if there is no arc between them.
+     */
+    private int find(int index1, int index2) {
+        int[] successors = arcs[index1];
+        for (int j = 0; j < degree[index1]; j++) {
+            if (successors[j] == index2) {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Wraps a traversal iterator into an ordered spliterator of distinct vertices.
+     */
+    private Spliterator<T> spliterator(Iterator<T> iter) {
+        return Spliterators.spliteratorUnknownSize(iter, Spliterator.ORDERED | Spliterator.DISTINCT);
+    }
+
+    /**
+     * Calls the visitor on each vertex of the traversal until it returns false.
+     */
+    private void traverse(Traversal iter, GraphVisitor<T> visitor) {
+        try {
+            while (iter.hasNext()) {
+                T current = iter.next();
+                if (!visitor.visit(current, iter.depth())) {
+                    return;
+                }
+            }
+        } finally {
+            iter.release();
+        }
+    }
+
+    /**
+     * Returns marks for a traversal to record the vertices it reached.
+     * Each thread keeps one set of marks for the lazy iterators and one
+     * for traversals that run to the end within one call, and reuses
+     * them, so a traversal only touches the vertices it reaches. A new
+     * iterator takes the marks over from an older one; a traversal run
+     * within a call, e.g. from a visitor, gets new marks if the kept ones
+     * are in use.
+     */
+    private TraversalMarks claimMarks(Traversal traversal, boolean bounded) {
+        TraversalMarks[] kept = marks.get();
+        TraversalMarks claimed = kept[bounded ? 1 : 0];
+        if (bounded && claimed.owner != null) {
+            claimed = new TraversalMarks();
+        }
+        claimed.begin(dictionary.size());
+        claimed.owner = traversal;
+        return claimed;
+    }
+
+    /**
+     * TraversalMarks records which vertices a traversal reached, and at
+     * what depth. A vertex counts as reached only if its stamp is the
+     * number of the current traversal, so nothing has to be cleared
+     * between traversals.
+     */
+    private static class TraversalMarks
+    {
+        private int[] stamp = new int[0]; // traversal each vertex was last reached in
+        private int[] depth = new int[0]; // fewest arcs each vertex was reached by
+        private int query;
+        private Object owner; // traversal using the marks, null if none
+
+        /**
+         * Starts a new traversal on a graph with the given number of vertices.
+         */
+        private void begin(int n) {
+            if (stamp.length < n) {
+                stamp = Arrays.copyOf(stamp, n);
+                depth = new int[n];
+            }
+            if (query == Integer.MAX_VALUE) {
+                Arrays.fill(stamp, 0);
+                query = 0;
+            }
+            query++;
+        }
+    }
+
+    /**
+     * Traversal is an iterator over the vertices reachable from a
+     * starting vertex, which only does the work needed to find the
+     * next vertex when it is asked for. It works on vertex ids, marks
+     * them in the TraversalMarks of its thread, and keeps a stack or
+     * queue that starts small and grows with the vertices it reaches,
+     * so it allocates nothing for each vertex visited and stopping
+     * early costs nothing for the rest of the graph. Only next() turns
+     * an id back into a vertex, which for a NameDictionary builds the
+     * string of a numeric name.
+     */
+    private abstract class Traversal implements Iterator<T>
+    {
+        protected int maxDepth;
+        protected int depth;
+        private TraversalMarks marks;
+        private int query;
+        private boolean done;
+
+        protected Traversal(int maxDepth, boolean bounded) {
+            this.maxDepth = maxDepth;
+            this.marks = claimMarks(this, bounded);
+            this.query = marks.query;
+        }
+
+        /**
+         * Finds whether the traversal has a next vertex.
+         */
+        protected abstract boolean advance();
+
+        /**
+         * Returns the index of the next vertex, once advance() found one.
+         */
+        protected abstract int take();
+
+        public boolean hasNext() {
+            if (done) {
+                return false;
+            }
+            if (marks.owner != this) {
+                throw new ConcurrentModificationException("Another traversal was started on this thread");
+            }
+            if (advance()) {
+                return true;
+            }
+            release();
+            return false;
+        }
+
+        /**
+         * Returns the index of the next vertex of the traversal.
+         */
+        protected int nextIndex() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return take();
+        }
+
+        public T next() {
+            return dictionary.getVertex(nextIndex());
+        }
+
+        /**
+         * Ends the traversal and gives its marks back to the thread.
+         */
+        protected void release() {
+            done = true;
+            if (marks.owner == this) {
+                marks.owner = null;
+            }
+        }
+
+        /**
+         * Returns the depth of the vertex last returned.
+         */
+        protected int depth() {
+            return depth;
+        }
+
+        protected boolean isMarked(int index) {
+            return marks.stamp[index] == query;
+        }
+
+        protected int markedDepth(int index) {
+            return marks.depth[index];
+        }
+
+        protected void mark(int index, int depth) {
+            marks.stamp[index] = query;
+            marks.depth[index] = depth;
+        }
+    }
+
+    /**
+     * DepthFirstIterator keeps a stack of the vertices on the path from
+     * the starting vertex, each with its place in its array of arcs.
+     * With a depth limit, a vertex found again by a shorter path is
+     * pushed again (but not returned again), so that the vertices beyond
+     * it that are within the limit are still found.
+     */
+    private class DepthFirstIterator extends Traversal
+    {
+        private int[] stack = new int[16];
+        private int[] places = new int[16];
+        private int size;
+        private int pending = -1; // index of the next vertex, found but not returned
+
+        private DepthFirstIterator(int start, int maxDepth, boolean bounded) {
+            super(maxDepth, bounded);
+            if (start >= 0) {
+                pending = start;
+                mark(start, 0);
+            }
+        }
+
+        protected boolean advance() {
+            if (pending >= 0) {
+                return true;
+            }
+            //go on from the deepest vertex with unvisited successors
+            while (size > 0) {
+                int top = stack[size - 1];
+                while (size <= maxDepth && places[size - 1] < degree[top]) {
+                    int successor = arcs[top][places[size - 1]++];
+                    if (!isMarked(successor)) {
+                        mark(successor, size);
+                        pending = successor;
+                        return true;
+                    }
+                    if (maxDepth != Integer.MAX_VALUE && markedDepth(successor) > size) {
+                        //shorter path to a vertex already returned, look past it again
+                        mark(successor, size);
+                        push(successor);
+                        top = successor;
+                    }
                 }
+                size--;
             }
+            return false;
+        }
+
+        protected int take() {
+            int current = pending;
+            pending = -1;
+            depth = size;
+            //push the vertex, its successors are only looked at on the next call
+            push(current);
+            return current;
+        }
+
+        private void push(int index) {
+            if (size == stack.length) {
+                stack = Arrays.copyOf(stack, size * 2);
+                places = Arrays.copyOf(places, size * 2);
+            }
+            stack[size] = index;
+            places[size++] = 0;
+        }
+    }
+
+    /**
+     * BreadthFirstIterator keeps a queue of the vertices found, which
+     * grows as they are found since each one is only put in it once.
+     */
+    private class BreadthFirstIterator extends Traversal
+    {
+        private int[] queue = new int[16];
+        private int head;
+        private int tail;
+        private int levelEnd; // place in the queue where the next level starts
+        private int last = -1; // index of the vertex last returned, not yet expanded
+
+        private BreadthFirstIterator(int start, int maxDepth, boolean bounded) {
+            super(maxDepth, bounded);
+            this.depth = -1;
+            if (start >= 0) {
+                queue[tail++] = start;
+                mark(start, 0);
+            }
+        }
+
+        protected boolean advance() {
+            //enqueue successors of the vertex last returned, if not too deep
+            if (last >= 0) {
+                if (depth < maxDepth) {
+                    for (int j = 0; j < degree[last]; j++) {
+                        int index = arcs[last][j];
+                        if (!isMarked(index)) {
+                            if (tail == queue.length) {
+                                queue = Arrays.copyOf(queue, tail * 2);
+                            }
+                            queue[tail++] = index;
+                            mark(index, depth + 1);
+                        }
+                    }
+                }
+                last = -1;
+            }
+            return head < tail;
+        }
+
+        protected int take() {
+            if (head == levelEnd) {
+                depth++;
+                levelEnd = tail;
+            }
+            last = queue[head++];
+            return last;
         }
-        return iterator;
     }
 
     /**
@@ -428,6 +1306,47 @@ public class AdjListsGraph<T> implements Graph<T>
         System.out.println((disconnected.depthFirstSearch("1")));
         disconnected.saveToTGF("Disconnected.tgf");
 
+        System.out.println("Tree BFS to depth 2: a,b,c,d,e,f,g");
+        System.out.println(tree.breadthFirstStream("a", 2).collect(Collectors.toList()));
+        System.out.println("Tree DFS first 4: a,b,d,h");
+        System.out.println(tree.depthFirstStream("a").limit(4).collect(Collectors.toList()));
+        AdjListsGraph<String> shortcut = new AdjListsGraph<String>();
+        shortcut.addVertex("a");
+        shortcut.addVertex("b");
+        shortcut.addVertex("c");
+        shortcut.addVertex("d");
+        shortcut.addEdge("a","b");
+        shortcut.addEdge("b","c");
+        shortcut.addEdge("a","c");
+        shortcut.addEdge("c","d");
+        System.out.println("Shortcut DFS to depth 2: a,b,c,d");
+        System.out.println(shortcut.depthFirstStream("a", 2).collect(Collectors.toList()));
+        System.out.println("Expected isReachable() true: " + disconnected.isReachable("1", "4"));
+        System.out.println("Expected isReachable() false: " + disconnected.isReachable("4", "1"));
+        System.out.println("Tree shortest path: h,d,b,e,j");
+        System.out.println(tree.shortestPath("h", "j"));
+        System.out.println("Expected distance() 4: " + tree.distance("h", "j"));
+        System.out.println("Expected distance() -1: " + disconnected.distance("1", "5"));
+        AdjListsGraph<String> arrows = new AdjListsGraph<String>();
+        arrows.addVertex("a");
+        arrows.addVertex("b");
+        arrows.addVertex("c");
+        arrows.addArc("a", "b");
+        arrows.addArc("c", "b");
+        System.out.println("Expected distance() -1: " + arrows.distance("a", "c"));
+        System.out.println("Directed shortest path: 2,3,4");
+        System.out.println(disconnected.shortestPath("2", "4"));
+        Vector<String> from = new Vector<String>(Arrays.asList("a", "f", "i"));
+        Vector<String> to = new Vector<String>(Arrays.asList("j", "g", "i"));
+        System.out.println("Tree shortest paths: [a,b,e,j], [f,c,g], [i]");
+        System.out.println(tree.shortestPaths(from, to));
+        tree.breadthFirstTraversal("a", Integer.MAX_VALUE, new GraphVisitor<String>() {
+            public boolean visit(String vertex, int depth) {
+                System.out.println("Visited " + vertex + " at depth " + depth);
+                return !vertex.equals("e");
+            }
+        });
+
     }
 }
     
@@ -0,0 +1,358 @@
+/**
+ * Butterflies<T> counts the butterflies (2x2 bicliques) of an
+ * undirected bipartite AdjListsGraph, such as the graph of RATs
+ * and the stories they tweeted about. A butterfly is two accounts
+ * that share two stories, and is a sign of coordinated amplification.
+ *
+ * Counting is done by wedge enumeration in degree order: every
+ * butterfly is found exactly once from its highest degree vertex,
+ * so hubs never have to be paired with each other's neighbors.
+ * The start vertices are shared between all available cores, and
+ * can optionally be sampled to get an estimate in bounded time.
+ *
+ * @author mpapagel
+ * @version 05/15/20
+ */
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+public class Butterflies<T>
+{
+    // number of start vertices a thread takes at a time
+    private static final int CHUNK = 64;
+
+    // instance variables
+    private AdjListsGraph<T> graph;
+    private int removals; // removals from the graph when it was ranked
+    private int[] rank; // rank of each vertex of the graph, by id
+    private int[][] adj; // neighbors of each vertex, by increasing rank
+    private long[] counts; // butterflies each vertex takes part in, by rank
+    private long total;
+    private double scale;
+
+    /**
+     * Constructor for Butterflies class ranks the vertices of the
+     * given graph by degree and copies its arcs into arrays.
+     * The counts are of the graph as it is now: vertices added later
+     * have no butterflies, arcs added or removed later are not counted,
+     * and after a vertex is removed the counts can no longer be looked up.
+     * @param graph undirected graph whose butterflies will be counted
+     */
+    public Butterflies(AdjListsGraph<T> graph) {
+        this.graph = graph;
+        this.removals = graph.getRemovals();
+        int n = graph.getNumVertices();
+        //copy successors of each vertex, dropping loops and repeated arcs
+        int[][] lists = new int[n][];
+        for (int i = 0; i < n; i++) {
+            int[] list = graph.successorIndexes(i);
+            Arrays.sort(list);
+            int unique = 0;
+            for (int k = 0; k < list.length; k++) {
+                if (list[k] != i && (unique == 0 || list[unique - 1] != list[k])) {
+                    list[unique++] = list[k];
+                }
+            }
+            lists[i] = Arrays.copyOf(list, unique);
+        }
+        //rank vertices by increasing degree
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        final int[][] byIndex = lists;
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return byIndex[a].length != byIndex[b].length
+                ? Integer.compare(byIndex[a].length, byIndex[b].length)
+                : Integer.compare(a, b);
+            }
+        });
+        this.rank = new int[n];
+        for (int r = 0; r < n; r++) {
+            rank[order[r]] = r;
+        }
+        //relabel arcs by rank
+        this.adj = new int[n][];
+        for (int r = 0; r < n; r++) {
+            int[] list = lists[order[r]];
+            int[] ranked = new int[list.length];
+            for (int k = 0; k < list.length; k++) {
+                ranked[k] = rank[list[k]];
+            }
+            Arrays.sort(ranked);
+            adj[r] = ranked;
+        }
+        this.counts = new long[n];
+        this.scale = 1.0;
+    }
+
+    /**
+     * Counts every butterfly in the graph exactly, using all
+     * available cores.
+     */
+    public void count() {
+        count(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Counts every butterfly in the graph exactly.
+     * @param numThreads number of threads to count with
+     */
+    public void count(int numThreads) {
+        run(numThreads, 1.0, 0L);
+    }
+
+    /**
+     * Estimates the butterflies in the graph by only starting the
+     * wedge enumeration from a random sample of the vertices, and
+     * scaling up what was found. Smaller rates take less time.
+     * @param sampleRate probability of each vertex being sampled,
+     * between 0 (exclusive) and 1 (inclusive)
+     * @param seed seed for choosing the sampled vertices
+     */
+    public void estimate(double sampleRate, long seed) {
+        if (sampleRate <= 0.0 || sampleRate > 1.0) {
+            throw new IllegalArgumentException("Sample rate must be in (0, 1]: " + sampleRate);
+        }
+        run(Runtime.getRuntime().availableProcessors(), sampleRate, seed);
+    }
+
+    /**
+     * Getter method returns the number of butterflies in the graph,
+     * estimated if the last count was sampled.
+     * @return total number of butterflies
+     */
+    public long getTotal() {
+        return Math.round(total * scale);
+    }
+
+    /**
+     * Getter method returns the number of butterflies the given
+     * vertex takes part in, estimated if the last count was sampled.
+     * @param vertex vertex of the graph
+     * @return number of butterflies containing the vertex, 0 if the
+     * vertex is not in the graph or was added after it was ranked
+     * @throws IllegalStateException if a vertex was removed from the
+     * graph since it was ranked
+     */
+    public long getButterflies(T vertex) {
+        return getButterfliesAt(graph.indexOf(vertex));
+    }
+
+    /**
+     * Method returns the number of butterflies each of the given
+     * vertices takes part in, e.g. every account or every story.
+     * @param side vertices to look up
+     * @return Hashtable<T, Long> from each vertex to its butterflies,
+     * leaving out vertices that were not in the graph when it was ranked
+     * @throws IllegalStateException if a vertex was removed from the
+     * graph since it was ranked
+     */
+    public Hashtable<T, Long> getButterflies(Collection<T> side) {
+        Hashtable<T, Long> result = new Hashtable<T, Long>();
+        for (T vertex : side) {
+            int index = graph.indexOf(vertex);
+            if (index >= 0 && index < rank.length) {
+                result.put(vertex, getButterfliesAt(index));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of butterflies the vertex with the given id in
+     * the graph takes part in, estimated if the last count was sampled.
+     * @param index id of the vertex in the graph
+     * @return number of butterflies containing the vertex, 0 if there
+     * was no vertex with that id when the graph was ranked
+     * @throws IllegalStateException if a vertex was removed from the
+     * graph since it was ranked
+     */
+    long getButterfliesAt(int index) {
+        if (graph.getRemovals() != removals) {
+            throw new IllegalStateException("A vertex was removed from the graph after its butterflies were counted");
+        }
+        if (index < 0 || index >= rank.length) {
+            return 0;
+        }
+        return Math.round(counts[rank[index]] * scale);
+    }
+
+    /**
+     * Shares the start vertices between the given number of threads,
+     * handing out the highest ranked (most expensive) ones first,
+     * then adds up the counts of all threads.
+     * @param numThreads number of threads to count with
+     * @param sampleRate probability of each vertex being a start vertex
+     * @param seed seed for choosing the sampled vertices
+     */
+    private void run(int numThreads, double sampleRate, long seed) {
+        int n = adj.length;
+        numThreads = Math.max(1, Math.min(numThreads, n / CHUNK + 1));
+        AtomicInteger next = new AtomicInteger(n);
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        List<Future<Worker>> futures = new ArrayList<Future<Worker>>();
+        for (int t = 0; t < numThreads; t++) {
+            futures.add(pool.submit(new Worker(next, sampleRate, seed)));
+        }
+        this.total = 0;
+        this.counts = new long[n];
+        try {
+            for (Future<Worker> future : futures) {
+                Worker worker = future.get();
+                total += worker.total;
+                for (int v = 0; v < n; v++) {
+                    counts[v] += worker.counts[v];
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        this.scale = 1.0 / sampleRate;
+    }
+
+    /**
+     * Returns whether the given vertex is a start vertex of a sampled
+     * count, using a hash of the seed so that the sample does not
+     * depend on which thread the vertex was given to.
+     */
+    private static boolean sampled(int vertex, double sampleRate, long seed) {
+        long z = seed + (vertex + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53 < sampleRate;
+    }
+
+    /**
+     * Worker counts the butterflies whose highest ranked vertex is one
+     * of the start vertices it takes, keeping its own counts so that
+     * threads never write to the same array.
+     */
+    private class Worker implements Callable<Worker>
+    {
+        private AtomicInteger next;
+        private double sampleRate;
+        private long seed;
+        private long total;
+        private long[] counts;
+
+        private Worker(AtomicInteger next, double sampleRate, long seed) {
+            this.next = next;
+            this.sampleRate = sampleRate;
+            this.seed = seed;
+        }
+
+        public Worker call() {
+            int n = adj.length;
+            counts = new long[n];
+            int[] wedges = new int[n]; // wedges from the start vertex to each end vertex
+            int[] touched = new int[n];
+            int end = next.getAndAdd(-CHUNK);
+            while (end > 0) {
+                for (int u = end - 1; u >= Math.max(0, end - CHUNK); u--) {
+                    if (sampleRate >= 1.0 || sampled(u, sampleRate, seed)) {
+                        countFrom(u, wedges, touched);
+                    }
+                }
+                end = next.getAndAdd(-CHUNK);
+            }
+            return this;
+        }
+
+        /**
+         * Counts the butterflies whose highest ranked vertex is u, by
+         * counting the wedges u-v-w where v and w rank lower than u.
+         * Each pair of wedges sharing the end vertex w is a butterfly.
+         */
+        private void countFrom(int u, int[] wedges, int[] touched) {
+            int numTouched = 0;
+            for (int v : adj[u]) {
+                if (v >= u) {
+                    break;
+                }
+                for (int w : adj[v]) {
+                    if (w >= u) {
+                        break;
+                    }
+                    if (wedges[w] == 0) {
+                        touched[numTouched++] = w;
+                    }
+                    wedges[w]++;
+                }
+            }
+            for (int i = 0; i < numTouched; i++) {
+                int w = touched[i];
+                long found = (long) wedges[w] * (wedges[w] - 1) / 2;
+                total += found;
+                counts[u] += found;
+                counts[w] += found;
+            }
+            //each middle vertex v is in a butterfly with every other wedge to w
+            for (int v : adj[u]) {
+                if (v >= u) {
+                    break;
+                }
+                for (int w : adj[v]) {
+                    if (w >= u) {
+                        break;
+                    }
+                    counts[v] += wedges[w] - 1;
+                }
+            }
+            for (int i = 0; i < numTouched; i++) {
+                wedges[touched[i]] = 0;
+            }
+        }
+    }
+
+    /**
+     * Main method used for testing implementation on sample graphs.
+     */
+    public static void main(String [] args) {
+        //two accounts sharing two stories: one butterfly
+        AdjListsGraph<String> square = new AdjListsGraph<String>();
+        square.addVertex("alice");
+        square.addVertex("bob");
+        square.addVertex("1");
+        square.addVertex("2");
+        square.addEdge("alice", "1");
+        square.addEdge("alice", "2");
+        square.addEdge("bob", "1");
+        square.addEdge("bob", "2");
+        Butterflies<String> b = new Butterflies<String>(square);
+        b.count();
+        System.out.println("Expected total 1: " + b.getTotal());
+        System.out.println("Expected alice 1: " + b.getButterflies("alice"));
+        System.out.println("Expected 1 1: " + b.getButterflies("1"));
+
+        //three accounts sharing three stories: 3 choose 2 squared = 9
+        AdjListsGraph<String> full = new AdjListsGraph<String>();
+        String[] accounts = {"a", "b", "c"};
+        String[] stories = {"1", "2", "3"};
+        for (String account : accounts) {
+            full.addVertex(account);
+        }
+        for (String story : stories) {
+            full.addVertex(story);
+        }
+        for (String account : accounts) {
+            for (String story : stories) {
+                full.addEdge(account, story);
+            }
+        }
+        b = new Butterflies<String>(full);
+        b.count(2);
+        System.out.println("Expected total 9: " + b.getTotal());
+        System.out.println("Expected a 6: " + b.getButterflies("a"));
+        System.out.println("Expected 3 6: " + b.getButterflies("3"));
+        b.estimate(0.5, 42L);
+        System.out.println("Estimated total: " + b.getTotal());
+    }
+}
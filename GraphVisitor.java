@@ -0,0 +1,21 @@
+
+/**
+ * GraphVisitor<T> is called back by the traversal methods of
+ * AdjListsGraph for each vertex they reach, and decides whether
+ * the traversal should go on.
+ * 
+ * @author mpapagel
+ * @version 05/15/20
+ */
+public interface GraphVisitor<T>
+{
+    /**
+     * Visits a vertex reached by a traversal.
+     * @param vertex the vertex reached
+     * @param depth number of arcs between the starting vertex and this
+     * vertex on the path the traversal first reached it by, which for a
+     * breadth first traversal is the fewest arcs between them
+     * @return true to keep traversing, false to stop the traversal here
+     */
+    public boolean visit(T vertex, int depth);
+}
@@ -0,0 +1,54 @@
+
+/**
+ * HashVertexDictionary<T> implements the VertexDictionary<T>
+ * interface for any kind of vertex, using a hash table to find
+ * the id of a vertex and a list to find the vertex of an id.
+ * 
+ * @author mpapagel
+ * @version 05/15/20
+ */
+import java.util.*;
+public class HashVertexDictionary<T> implements VertexDictionary<T>
+{
+    // instance variables
+    private HashMap<T, Integer> ids;
+    private ArrayList<T> vertices;
+
+    /**
+     * Constructor for HashVertexDictionary class creates an empty dictionary
+     */
+    public HashVertexDictionary() {
+        ids = new HashMap<T, Integer>();
+        vertices = new ArrayList<T>();
+    }
+
+    public int getId(T vertex) {
+        Integer id = ids.get(vertex);
+        return id == null ? -1 : id;
+    }
+
+    public int add(T vertex) {
+        Integer id = ids.get(vertex);
+        if (id == null) {
+            id = vertices.size();
+            ids.put(vertex, id);
+            vertices.add(vertex);
+        }
+        return id;
+    }
+
+    public T getVertex(int id) {
+        return vertices.get(id);
+    }
+
+    public int size() {
+        return vertices.size();
+    }
+
+    public void remove(int id) {
+        ids.remove(vertices.remove(id));
+        for (int i = id; i < vertices.size(); i++) {
+            ids.put(vertices.get(i), i);
+        }
+    }
+}
@@ -32,5 +32,8 @@ public class Investigate
         //find total vertices and see if graph is completely connected
         System.out.println("total vertices: " + rats.getGraph().getNumVertices());
         System.out.println("Is this graph completely connected? " + rats.isConnected());
+        //count butterflies as a sign of coordination
+        rats.coordination();
+        System.out.println("Total Butterflies: " + rats.getAllButterflies());
     }
 }
@@ -0,0 +1,208 @@
+
+/**
+ * NameDictionary implements the VertexDictionary<String> interface
+ * for graphs whose vertices are names, like the screen names and
+ * story ids of the RAT graph. Names that are numbers, like story
+ * ids, are parsed and kept as ints instead of strings, and are only
+ * turned back into strings when getVertex is called. Other names
+ * are kept as a single string each. Names can not be null.
+ * 
+ * @author mpapagel
+ * @version 05/15/20
+ */
+import java.util.*;
+public class NameDictionary implements VertexDictionary<String>
+{
+    // largest number of digits kept as an int, so parsing never overflows
+    private static final int MAX_DIGITS = 9;
+
+    // instance variables
+    private HashMap<String, Integer> nameIds;
+    private int[] numberKeys; // hash table from numbers to ids, -1 if empty
+    private int[] numberIds;
+    private int shift; // 32 minus log2 of the table length, to take the high bits of a hash
+    private int numNumbers;
+    private String[] names; // name of each id, null if it is a number
+    private int[] numbers; // number of each id, if it has no name
+    private int size;
+
+    /**
+     * Constructor for NameDictionary class creates an empty dictionary
+     */
+    public NameDictionary() {
+        nameIds = new HashMap<String, Integer>();
+        numberKeys = new int[16];
+        numberIds = new int[16];
+        shift = 32 - 4;
+        Arrays.fill(numberKeys, -1);
+        names = new String[16];
+        numbers = new int[16];
+    }
+
+    /**
+     * Returns the id of the given name.
+     * @param vertex the name to look up
+     * @return id of the name, -1 if it is not in the dictionary or is null
+     */
+    public int getId(String vertex) {
+        if (vertex == null) {
+            return -1;
+        }
+        int number = parse(vertex);
+        if (number >= 0) {
+            int slot = find(number);
+            return numberKeys[slot] == -1 ? -1 : numberIds[slot];
+        }
+        Integer id = nameIds.get(vertex);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Adds the given name to the dictionary, if it is not there yet.
+     * @param vertex the name to be added
+     * @return id of the name
+     * @throws IllegalArgumentException if the name is null, since names
+     * can not be null in this dictionary
+     */
+    public int add(String vertex) {
+        if (vertex == null) {
+            throw new IllegalArgumentException("NameDictionary does not allow null names");
+        }
+        int id = getId(vertex);
+        if (id >= 0) {
+            return id;
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            numbers = Arrays.copyOf(numbers, size * 2);
+        }
+        id = size++;
+        int number = parse(vertex);
+        if (number >= 0) {
+            numbers[id] = number;
+            putNumber(number, id);
+        } else {
+            names[id] = vertex;
+            nameIds.put(vertex, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the name of the vertex with the given id. A number is
+     * turned into a new string on every call, so code that only needs
+     * to tell vertices apart should keep to ids and getNumber.
+     * @param id id of a vertex in the dictionary
+     * @return the name of the vertex
+     */
+    public String getVertex(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("No vertex with id " + id);
+        }
+        return names[id] != null ? names[id] : Integer.toString(numbers[id]);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void remove(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("No vertex with id " + id);
+        }
+        System.arraycopy(names, id + 1, names, id, size - id - 1);
+        System.arraycopy(numbers, id + 1, numbers, id, size - id - 1);
+        size--;
+        names[size] = null;
+        //rebuild both tables, since every id after the removed one changed
+        nameIds.clear();
+        Arrays.fill(numberKeys, -1);
+        numNumbers = 0;
+        for (int i = 0; i < size; i++) {
+            if (names[i] != null) {
+                nameIds.put(names[i], i);
+            } else {
+                putNumber(numbers[i], i);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the vertex with the given id is kept as a number.
+     * @param id id of a vertex in the dictionary
+     * @return true if the vertex is a number, false if it is a name
+     */
+    public boolean isNumber(int id) {
+        return names[id] == null;
+    }
+
+    /**
+     * Returns the number of the vertex with the given id, e.g. a story id.
+     * @param id id of a vertex that is a number
+     * @return the number the vertex was parsed into
+     */
+    public int getNumber(int id) {
+        return numbers[id];
+    }
+
+    /**
+     * Parses a name made of at most MAX_DIGITS digits, without a leading
+     * zero, so that turning the number back into a string gives the same
+     * name. Returns -1 for any other name.
+     */
+    private static int parse(String name) {
+        int length = name.length();
+        if (length == 0 || length > MAX_DIGITS || (name.charAt(0) == '0' && length > 1)) {
+            return -1;
+        }
+        int number = 0;
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    /**
+     * Returns the slot of the given number in the hash table, or the
+     * empty slot where it would go.
+     */
+    private int find(int number) {
+        int mask = numberKeys.length - 1;
+        //the high bits of the product depend on all the bits of the number
+        int slot = (number * 0x9E3779B9) >>> shift;
+        while (numberKeys[slot] != -1 && numberKeys[slot] != number) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Puts a number and its id in the hash table, doubling the table
+     * when it gets half full.
+     */
+    private void putNumber(int number, int id) {
+        if (2 * (numNumbers + 1) > numberKeys.length) {
+            int[] oldKeys = numberKeys;
+            int[] oldIds = numberIds;
+            numberKeys = new int[oldKeys.length * 2];
+            numberIds = new int[oldKeys.length * 2];
+            shift--;
+            Arrays.fill(numberKeys, -1);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != -1) {
+                    int slot = find(oldKeys[i]);
+                    numberKeys[slot] = oldKeys[i];
+                    numberIds[slot] = oldIds[i];
+                }
+            }
+        }
+        int slot = find(number);
+        numberKeys[slot] = number;
+        numberIds[slot] = id;
+        numNumbers++;
+    }
+}
@@ -18,10 +18,12 @@ public class Rats
     private int allstories;
     private int allusers;
     private int alltweets;
-    private Hashtable<String, Integer> storyTable;
-    private String mostPopularStory;
-    private String leastPopularStory;
+    private NameDictionary dictionary; // ids of screen names and stories in RATgraph
+    private BitSet stories; // ids of the vertices that are stories
+    private int mostPopularStory = -1;
+    private int leastPopularStory = -1;
     private String mostActiveRAT;
+    private Butterflies<String> butterflies;
     private String urlFindStoryTitle = "http://twittertrails.wellesley.edu/~trails/stories/title.php?id=";
 
     /**
@@ -30,8 +32,9 @@ public class Rats
      */
     public Rats(String csvFile)
     {
-        this.RATgraph = new AdjListsGraph<String>();
-        this.storyTable = new Hashtable<String, Integer>();
+        this.dictionary = new NameDictionary();
+        this.RATgraph = new AdjListsGraph<String>(dictionary);
+        this.stories = new BitSet();
         this.readRats(csvFile);
     }
     
@@ -83,23 +86,19 @@ public class Rats
                 allusers++;
                 //put stories into an array separating by commas
                 String[] storiesArray = allInfo[4].split(",");
-                //set variable for number of users who used a story
-                int usedStory = 0; 
                 for (int i = 0; i < storiesArray.length; i++) {
-                    if (storyTable.containsKey(storiesArray[i])) {
-                        usedStory = storyTable.get(storiesArray[i]);
-                        //increment frequency of story in hashtable
-                        storyTable.put(storiesArray[i], usedStory++);
-                    } else {
-                        storyTable.put(storiesArray[i], 1); //if a story has a frequency of 1
+                    //add stories to graph as vertices, kept by the dictionary as ints
+                    RATgraph.addVertex(storiesArray[i]);
+                    int story = dictionary.getId(storiesArray[i]);
+                    if (!stories.get(story)) {
+                        stories.set(story);
                         allstories++;
-                        //add stories to graph as vertices
-                        RATgraph.addVertex(storiesArray[i]);
                     }
                     //add edges between each screen name and its associated story to graph
                     RATgraph.addEdge(screenName, storiesArray[i]);
                 }
             }
+            RATgraph.trimToSize();
         } catch(FileNotFoundException e) {
             System.out.println("File not found.");
         }
@@ -115,7 +114,7 @@ public class Rats
     
     /**
      * Method finds the most and least popular stories,
-     * by iterating through stories in the hashtable, and
+     * by iterating through the stories in the graph, and
      * sets the most/least popular instance variables to these
      * numbers without returning anything.
      */
@@ -123,8 +122,8 @@ public class Rats
         int largestSize = 0;
         int currentSize;
         int smallestSize = Integer.MAX_VALUE;
-        for(String storyid: storyTable.keySet()) { 
-            currentSize = (RATgraph.getSuccessors(storyid)).size();
+        for(int storyid = stories.nextSetBit(0); storyid >= 0; storyid = stories.nextSetBit(storyid + 1)) { 
+            currentSize = RATgraph.degree(storyid);
             if (currentSize > largestSize) {
                 this.mostPopularStory = storyid;
                 largestSize = currentSize;
@@ -141,7 +140,7 @@ public class Rats
      * @return mostPopularStory most popular story
      */
     public String getMostPopStory() {
-        return this.mostPopularStory;
+        return this.mostPopularStory < 0 ? null : dictionary.getVertex(this.mostPopularStory);
     }
 
     /**
@@ -149,7 +148,7 @@ public class Rats
      * @return leastPopularStory least popular story
      */
     public String getLeastPopStory() {
-        return this.leastPopularStory;
+        return this.leastPopularStory < 0 ? null : dictionary.getVertex(this.leastPopularStory);
     }
     
      /**
@@ -181,19 +180,76 @@ public class Rats
         return this.mostActiveRAT;
     }
 
+    /**
+     * Method counts the butterflies in the graph, that is the pairs of
+     * RATs who both took part in the same two stories, which is a sign
+     * of coordinated amplification. Sets the butterflies instance
+     * variable without returning anything. The butterfly getters call
+     * this themselves the first time if it has not been called yet.
+     */
+    public void coordination() {
+        this.butterflies = new Butterflies<String>(RATgraph);
+        butterflies.count();
+    }
+
+    /**
+     * Returns the butterflies of the graph, counting them first if
+     * coordination() has not been called yet.
+     */
+    private Butterflies<String> countedButterflies() {
+        if (butterflies == null) {
+            coordination();
+        }
+        return butterflies;
+    }
+
+    /**
+     * Getter method returns the total number of butterflies in the graph,
+     * counting them first if coordination() has not been called yet.
+     * @return total number of butterflies
+     */
+    public long getAllButterflies() {
+        return countedButterflies().getTotal();
+    }
+
+    /**
+     * Method returns the number of butterflies each RAT takes part in,
+     * counting them first if coordination() has not been called yet.
+     * @return Hashtable<String, Long> from each screen name to its butterflies
+     */
+    public Hashtable<String, Long> getAccountButterflies() {
+        Butterflies<String> counted = countedButterflies();
+        Hashtable<String, Long> result = new Hashtable<String, Long>();
+        for (int id = stories.nextClearBit(0); id < dictionary.size(); id = stories.nextClearBit(id + 1)) {
+            result.put(dictionary.getVertex(id), counted.getButterfliesAt(id));
+        }
+        return result;
+    }
+
+    /**
+     * Method returns the number of butterflies each story takes part in,
+     * counting them first if coordination() has not been called yet.
+     * @return Hashtable<String, Long> from each story id to its butterflies
+     */
+    public Hashtable<String, Long> getStoryButterflies() {
+        Butterflies<String> counted = countedButterflies();
+        Hashtable<String, Long> result = new Hashtable<String, Long>();
+        for (int id = stories.nextSetBit(0); id >= 0; id = stories.nextSetBit(id + 1)) {
+            result.put(dictionary.getVertex(id), counted.getButterfliesAt(id));
+        }
+        return result;
+    }
+
     /**
      * Method returns the size of the largest connected component
      * in the graph
      * @return largestSize size of the LCC
      */
     public int findLCC() {
-        Vector<String> vertices = RATgraph.getAllVertices();
         int largestSize = 0;
         int currentSize;
-        LinkedList<String> dfsList = new LinkedList<String>(); 
-        for (int i = 0; i < vertices.size(); i++) {
-            dfsList = RATgraph.depthFirstSearch((vertices.elementAt(i)));
-            currentSize = dfsList.size();
+        for (int i = 0; i < RATgraph.getNumVertices(); i++) {
+            currentSize = RATgraph.countReachable(i);
             if (currentSize > largestSize) {
                 largestSize = currentSize;
             }
@@ -207,12 +263,10 @@ public class Rats
      * @return smallestSize size of the SCC
      */
     public int findSCC() {
-        Vector<String> vertices = RATgraph.getAllVertices();
         int smallestSize = Integer.MAX_VALUE;
         int currentSize;
-        for (int i = 0; i < vertices.size(); i++) {        
-           LinkedList<String> bfsList = RATgraph.breadthFirstSearch((vertices.elementAt(i)));
-            currentSize = bfsList.size();
+        for (int i = 0; i < RATgraph.getNumVertices(); i++) {
+            currentSize = RATgraph.countReachable(i);
             if (currentSize < smallestSize) {
                 smallestSize = currentSize;
             }
@@ -254,6 +308,9 @@ public class Rats
         //find total vertices and see if graph is completely connected
         System.out.println("total vertices: " + rats.getGraph().getNumVertices());
         System.out.println("Is this graph completely connected? " + rats.isConnected());
+        //count butterflies as a sign of coordination
+        rats.coordination();
+        System.out.println("Total Butterflies: " + rats.getAllButterflies());
 
     }
 }
@@ -0,0 +1,50 @@
+
+/**
+ * VertexDictionary<T> gives each vertex of a graph a compact int id,
+ * from 0 to size() - 1 in the order the vertices were added, so that
+ * the graph can store its arcs as arrays of ids instead of vertices.
+ * A dictionary can be shared with the class loading the graph, which
+ * can then work with the ids and only turn them back into vertices
+ * when printing or saving them. Whether a null vertex is allowed
+ * depends on the dictionary.
+ * 
+ * @author mpapagel
+ * @version 05/15/20
+ */
+public interface VertexDictionary<T>
+{
+    /**
+     * Returns the id of the given vertex.
+     * @param vertex the vertex to look up
+     * @return id of the vertex, -1 if it is not in the dictionary
+     */
+    public int getId(T vertex);
+
+    /**
+     * Adds the given vertex to the dictionary, if it is not there yet.
+     * @param vertex the vertex to be added
+     * @return id of the vertex
+     */
+    public int add(T vertex);
+
+    /**
+     * Returns the vertex with the given id. A dictionary that keeps
+     * vertices in a compact form may build a new object on each call.
+     * @param id id of a vertex in the dictionary
+     * @return the vertex with that id
+     */
+    public T getVertex(int id);
+
+    /**
+     * Returns the number of vertices in the dictionary.
+     * @return the number of vertices in the dictionary
+     */
+    public int size();
+
+    /**
+     * Removes the vertex with the given id. The ids of the vertices
+     * added after it go down by one, so the ids stay compact.
+     * @param id id of the vertex to be removed
+     */
+    public void remove(int id);
+}